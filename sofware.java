@@ -1,7 +1,14 @@
 import java.time.LocalDateTime;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 
 /**
  * Implementación del esquema conceptual pedido.
@@ -76,7 +83,8 @@ class Empresa {
     private String direccion;
 
     // Conexión: cero a muchos con Reclamo
-    private List<Reclamo> reclamos = new ArrayList<>();
+    private List<Reclamo> reclamos = new ArrayList<>();   // reclamos en memoria
+    private ListaPaginada<Reclamo> vistaReclamos;        // null: no hay historial persistente
 
     public Empresa(String idEmpresa, String nombre, String contacto, String direccion) {
         this.idEmpresa = idEmpresa;
@@ -90,23 +98,37 @@ class Empresa {
     public String getNombre() { return nombre; }
     public String getContacto() { return contacto; }
     public String getDireccion() { return direccion; }
-    public List<Reclamo> getReclamos() { return Collections.unmodifiableList(reclamos); }
+    public List<Reclamo> getReclamos() {
+        return vistaReclamos != null ? vistaReclamos : Collections.unmodifiableList(reclamos);
+    }
 
     // helpers
     public void addReclamo(Reclamo r) {
         if (r == null) return;
         if (!reclamos.contains(r)) {
+            if (vistaReclamos != null) vistaReclamos.quitar(r); // re-activación: si estaba archivado, sale del historial
             reclamos.add(r);
             if (r.getEmpresa() != this) r.setEmpresa(this);
         }
     }
 
     public void removeReclamo(Reclamo r) {
-        if (reclamos.remove(r)) {
+        if (reclamos.remove(r) || (vistaReclamos != null && vistaReclamos.quitar(r))) {
             if (r.getEmpresa() == this) r.setEmpresa(null);
         }
     }
 
+    // historial: los reclamos archivados se leen por páginas desde el almacén.
+    // Un reclamo archivado sigue asociado: volver a agregarlo lo re-activa y quitarlo lo saca del historial
+    public void setHistorialReclamos(AlmacenAsociaciones<Reclamo> almacen) {
+        vistaReclamos = almacen == null ? null : new ListaPaginada<>(almacen, reclamos);
+    }
+
+    public void archivarReclamo(Reclamo r) {
+        if (vistaReclamos == null) return;
+        if (reclamos.remove(r)) vistaReclamos.guardar(r);
+    }
+
     @Override
     public String toString() {
         return "Empresa{" + nombre + "}";
@@ -122,7 +144,8 @@ class Hogar {
 
     // Conexiones: cero a muchos con Reclamo y Pedido
     private List<Reclamo> reclamos = new ArrayList<>();
-    private List<Pedido> pedidos = new ArrayList<>();
+    private List<Pedido> pedidos = new ArrayList<>();   // pedidos en memoria
+    private ListaPaginada<Pedido> vistaPedidos;        // null: no hay historial persistente
 
     public Hogar(String idHogar, String nombre, String contacto, String direccion) {
         this.idHogar = idHogar;
@@ -138,7 +161,9 @@ class Hogar {
     public String getDireccion() { return direccion; }
 
     public List<Reclamo> getReclamos() { return Collections.unmodifiableList(reclamos); }
-    public List<Pedido> getPedidos() { return Collections.unmodifiableList(pedidos); }
+    public List<Pedido> getPedidos() {
+        return vistaPedidos != null ? vistaPedidos : Collections.unmodifiableList(pedidos);
+    }
 
     // helpers para Reclamo
     public void addReclamo(Reclamo r) {
@@ -159,17 +184,29 @@ class Hogar {
     public void addPedido(Pedido p) {
         if (p == null) return;
         if (!pedidos.contains(p)) {
+            if (vistaPedidos != null) vistaPedidos.quitar(p); // re-activación: si estaba archivado, sale del historial
             pedidos.add(p);
             if (p.getHogar() != this) p.setHogar(this);
         }
     }
 
     public void removePedido(Pedido p) {
-        if (pedidos.remove(p)) {
+        if (pedidos.remove(p) || (vistaPedidos != null && vistaPedidos.quitar(p))) {
             if (p.getHogar() == this) p.setHogar(null);
         }
     }
 
+    // historial: los pedidos archivados se leen por páginas desde el almacén.
+    // Un pedido archivado sigue asociado: volver a agregarlo lo re-activa y quitarlo lo saca del historial
+    public void setHistorialPedidos(AlmacenAsociaciones<Pedido> almacen) {
+        vistaPedidos = almacen == null ? null : new ListaPaginada<>(almacen, pedidos);
+    }
+
+    public void archivarPedido(Pedido p) {
+        if (vistaPedidos == null) return;
+        if (pedidos.remove(p)) vistaPedidos.guardar(p);
+    }
+
     @Override
     public String toString() {
         return "Hogar{" + nombre + "}";
@@ -398,6 +435,7 @@ class Ruta {
         if (!rutaUbicaciones.contains(ru)) {
             rutaUbicaciones.add(ru);
             if (ru.getRuta() != this) ru.setRuta(this);
+            ru.reportar(); // tramo ya completado antes de asociarlo
         }
     }
 
@@ -416,6 +454,29 @@ class Ruta {
         if (m != null && !m.getRutas().contains(this)) {
             m.addRuta(this);
         }
+        // los tramos completados antes de tener Mapa se informan ahora
+        for (RutaUbicacion ru : rutaUbicaciones) {
+            ru.reportar();
+        }
+    }
+
+    // Estimación con los perfiles históricos del Mapa. La base es siempre el tEstimado de la ruta:
+    // la historia lo escala en la proporción en que cambia la suma de sus tramos, así que sin
+    // historia (o sin Mapa) se obtiene exactamente lo planificado.
+    // Los tiempos están en minutos; cada tramo usa la hora a la que empezaría.
+    public double estimarTiempo(LocalDateTime salida) {
+        if (salida == null || mapa == null || rutaUbicaciones.isEmpty()) return tEstimado;
+        List<RutaUbicacion> tramos = new ArrayList<>(rutaUbicaciones);
+        tramos.sort(Comparator.comparingInt(RutaUbicacion::getOrden));
+        double planificado = 0;
+        double estimado = 0;
+        for (RutaUbicacion ru : tramos) {
+            LocalDateTime inicio = salida.plusSeconds(Math.round(estimado * 60));
+            planificado += ru.gettEstimado();
+            estimado += mapa.getAnalitica().estimar(ru, inicio.getHour());
+        }
+        if (planificado <= 0) return tEstimado;
+        return tEstimado * estimado / planificado;
     }
 
     // Pedidos (0..*)
@@ -447,9 +508,13 @@ class Mapa {
     private String tipo;
 
     // Conexiones: de cero a muchos con Ruta y solo uno con API
-    private List<Ruta> rutas = new ArrayList<>();
+    private List<Ruta> rutas = new ArrayList<>();   // rutas en memoria
+    private ListaPaginada<Ruta> vistaRutas;        // null: no hay historial persistente
     private API api; // solo uno
 
+    // Perfiles de velocidad aprendidos de los tramos completados en este mapa
+    private AnaliticaRutas analitica = new AnaliticaRutas();
+
     public Mapa(String idMapa, String nombre, String proveedor, String tipo) {
         this.idMapa = idMapa;
         this.nombre = nombre;
@@ -463,23 +528,38 @@ class Mapa {
     public String getProveedor() { return proveedor; }
     public String getTipo() { return tipo; }
 
-    public List<Ruta> getRutas() { return Collections.unmodifiableList(rutas); }
+    public List<Ruta> getRutas() {
+        return vistaRutas != null ? vistaRutas : Collections.unmodifiableList(rutas);
+    }
     public API getApi() { return api; }
+    public AnaliticaRutas getAnalitica() { return analitica; }
 
     public void addRuta(Ruta r) {
         if (r == null) return;
         if (!rutas.contains(r)) {
+            if (vistaRutas != null) vistaRutas.quitar(r); // re-activación: si estaba archivado, sale del historial
             rutas.add(r);
             if (r.getMapa() != this) r.setMapa(this);
         }
     }
 
     public void removeRuta(Ruta r) {
-        if (rutas.remove(r)) {
+        if (rutas.remove(r) || (vistaRutas != null && vistaRutas.quitar(r))) {
             if (r.getMapa() == this) r.setMapa(null);
         }
     }
 
+    // historial: las rutas archivadas se leen por páginas desde el almacén.
+    // Una ruta archivada sigue asociada: volver a agregarla la re-activa y quitarla la saca del historial
+    public void setHistorialRutas(AlmacenAsociaciones<Ruta> almacen) {
+        vistaRutas = almacen == null ? null : new ListaPaginada<>(almacen, rutas);
+    }
+
+    public void archivarRuta(Ruta r) {
+        if (vistaRutas == null) return;
+        if (rutas.remove(r)) vistaRutas.guardar(r);
+    }
+
     public void setApi(API api) {
         if (this.api != null) {
             this.api.setMapa(null);
@@ -551,7 +631,8 @@ class Ubicacion {
 
     // Conexiones: De cero a muchos con Conductor, Pedido y RutaUbicación
     private List<Conductor> conductores = new ArrayList<>();
-    private List<Pedido> pedidos = new ArrayList<>();
+    private List<Pedido> pedidos = new ArrayList<>();   // pedidos en memoria
+    private ListaPaginada<Pedido> vistaPedidos;        // null: no hay historial persistente
     private List<RutaUbicacion> rutaUbicaciones = new ArrayList<>();
 
     public Ubicacion(String idUbicacion, double latitud, double longitud, String nombre, boolean valido, String tipo) {
@@ -572,7 +653,9 @@ class Ubicacion {
     public String getTipo() { return tipo; }
 
     public List<Conductor> getConductores() { return Collections.unmodifiableList(conductores); }
-    public List<Pedido> getPedidos() { return Collections.unmodifiableList(pedidos); }
+    public List<Pedido> getPedidos() {
+        return vistaPedidos != null ? vistaPedidos : Collections.unmodifiableList(pedidos);
+    }
     public List<RutaUbicacion> getRutaUbicaciones() { return Collections.unmodifiableList(rutaUbicaciones); }
 
     // helpers
@@ -593,17 +676,29 @@ class Ubicacion {
     public void addPedido(Pedido p) {
         if (p == null) return;
         if (!pedidos.contains(p)) {
+            if (vistaPedidos != null) vistaPedidos.quitar(p); // re-activación: si estaba archivado, sale del historial
             pedidos.add(p);
             if (p.getUbicacion() != this) p.setUbicacion(this);
         }
     }
 
     public void removePedido(Pedido p) {
-        if (pedidos.remove(p)) {
+        if (pedidos.remove(p) || (vistaPedidos != null && vistaPedidos.quitar(p))) {
             if (p.getUbicacion() == this) p.setUbicacion(null);
         }
     }
 
+    // historial: los pedidos archivados se leen por páginas desde el almacén.
+    // Un pedido archivado sigue asociado: volver a agregarlo lo re-activa y quitarlo lo saca del historial
+    public void setHistorialPedidos(AlmacenAsociaciones<Pedido> almacen) {
+        vistaPedidos = almacen == null ? null : new ListaPaginada<>(almacen, pedidos);
+    }
+
+    public void archivarPedido(Pedido p) {
+        if (vistaPedidos == null) return;
+        if (pedidos.remove(p)) vistaPedidos.guardar(p);
+    }
+
     public void addRutaUbicacion(RutaUbicacion ru) {
         if (ru == null) return;
         if (!rutaUbicaciones.contains(ru)) {
@@ -631,6 +726,11 @@ class RutaUbicacion {
     private double tEstimado;
     private double distancia;
 
+    // Tiempo real del tramo, se llena al completar la parada
+    private double tReal;
+    private LocalDateTime fechaCompletado; // null mientras no se complete
+    private List<Mapa> mapasReportados = new ArrayList<>(); // Mapas que ya aceptaron este tramo
+
     // Conexiones: Solo uno con Ruta y Ubicación
     private Ruta ruta;         // solo uno
     private Ubicacion ubicacion; // solo uno
@@ -645,10 +745,36 @@ class RutaUbicacion {
     public int getOrden() { return orden; }
     public double gettEstimado() { return tEstimado; }
     public double getDistancia() { return distancia; }
+    public double gettReal() { return tReal; }
+    public LocalDateTime getFechaCompletado() { return fechaCompletado; }
+    public boolean isCompletado() { return fechaCompletado != null; }
 
     public Ruta getRuta() { return ruta; }
     public Ubicacion getUbicacion() { return ubicacion; }
 
+    // Registra la duración real del tramo y la informa a la analítica del Mapa de la ruta
+    public void completar(LocalDateTime fecha, double tReal) {
+        if (fecha == null || isCompletado()) return;
+        this.fechaCompletado = fecha;
+        this.tReal = tReal;
+        reportar();
+    }
+
+    // Instante en que empezó el tramo (tReal en minutos); los perfiles se indexan por esta hora
+    public LocalDateTime getInicio() {
+        if (fechaCompletado == null) return null;
+        return fechaCompletado.minusSeconds(Math.round(tReal * 60));
+    }
+
+    // Informa el tramo completado al Mapa actual de la ruta, una sola vez por Mapa.
+    // Si aún falta Mapa o Ubicacion, Ruta.setMapa / Ruta.addRutaUbicacion / setUbicacion lo reintentan.
+    void reportar() {
+        if (!isCompletado() || ruta == null || ruta.getMapa() == null) return;
+        Mapa m = ruta.getMapa();
+        if (mapasReportados.contains(m)) return;
+        if (m.getAnalitica().registrar(this)) mapasReportados.add(m);
+    }
+
     public void setRuta(Ruta r) {
         if (this.ruta != null) {
             this.ruta.removeRutaUbicacion(this);
@@ -667,6 +793,7 @@ class RutaUbicacion {
         if (u != null && !u.getRutaUbicaciones().contains(this)) {
             u.addRutaUbicacion(this);
         }
+        reportar(); // tramo completado antes de tener Ubicacion
     }
 
     @Override
@@ -675,6 +802,368 @@ class RutaUbicacion {
     }
 }
 
+/* 11) PerfilVelocidad: resumen compacto de las velocidades observadas en una celda y hora */
+class PerfilVelocidad {
+    private long cantidad;
+    private double media;   // media móvil de la velocidad (distancia / tiempo)
+    private double m2;      // suma de cuadrados de desviaciones (Welford)
+    private double minimo = Double.MAX_VALUE;
+    private double maximo;
+
+    public long getCantidad() { return cantidad; }
+    public double getMedia() { return media; }
+    public double getMinimo() { return cantidad == 0 ? 0 : minimo; }
+    public double getMaximo() { return maximo; }
+    public double getVarianza() { return cantidad < 2 ? 0 : m2 / (cantidad - 1); }
+
+    // Actualización en línea: no guarda las observaciones
+    public void agregar(double velocidad) {
+        cantidad++;
+        double delta = velocidad - media;
+        media += delta / cantidad;
+        m2 += delta * (velocidad - media);
+        if (velocidad < minimo) minimo = velocidad;
+        if (velocidad > maximo) maximo = velocidad;
+    }
+
+    @Override
+    public String toString() {
+        return "PerfilVelocidad{n=" + cantidad + ", media=" + media + "}";
+    }
+}
+
+/* 12) AnaliticaRutas: perfiles de velocidad por celda de grilla y hora del día */
+class AnaliticaRutas {
+    // Tamaño de la celda en grados (~1 km en latitud)
+    public static final double TAMANO_CELDA = 0.01;
+    // Mínimo de observaciones antes de confiar en un perfil
+    public static final int MIN_OBSERVACIONES = 5;
+
+    private Map<Long, PerfilVelocidad> perfiles = new HashMap<>();
+
+    // Se llama por cada tramo completado (ver RutaUbicacion.reportar); false si el tramo
+    // todavía no se puede usar (sin Ubicacion, tiempo o distancia)
+    public boolean registrar(RutaUbicacion ru) {
+        if (ru == null || !ru.isCompletado() || ru.getUbicacion() == null) return false;
+        if (ru.gettReal() <= 0 || ru.getDistancia() <= 0) return false;
+        // misma hora que usa Ruta.estimarTiempo: la de inicio del tramo
+        long clave = clave(ru.getUbicacion(), ru.getInicio().getHour());
+        PerfilVelocidad perfil = perfiles.get(clave);
+        if (perfil == null) {
+            perfil = new PerfilVelocidad();
+            perfiles.put(clave, perfil);
+        }
+        perfil.agregar(ru.getDistancia() / ru.gettReal());
+        return true;
+    }
+
+    public PerfilVelocidad getPerfil(Ubicacion u, int hora) {
+        if (u == null) return null;
+        return perfiles.get(clave(u, hora));
+    }
+
+    // Tiempo estimado del tramo a esa hora; si no hay historia suficiente, el planificado
+    public double estimar(RutaUbicacion ru, int hora) {
+        PerfilVelocidad perfil = getPerfil(ru.getUbicacion(), hora);
+        if (perfil == null || perfil.getCantidad() < MIN_OBSERVACIONES || perfil.getMedia() <= 0) {
+            return ru.gettEstimado();
+        }
+        return ru.getDistancia() / perfil.getMedia();
+    }
+
+    // celda (fila, columna) y hora empaquetadas en un long
+    private static long clave(Ubicacion u, int hora) {
+        long fila = (long) Math.floor(u.getLatitud() / TAMANO_CELDA);
+        long columna = (long) Math.floor(u.getLongitud() / TAMANO_CELDA);
+        return ((fila & 0xFFFFFFL) << 32) | ((columna & 0xFFFFFFL) << 8) | (hora & 0xFF);
+    }
+
+    @Override
+    public String toString() {
+        return "AnaliticaRutas{" + perfiles.size() + " perfiles}";
+    }
+}
+
+/* 13) RegistroIds: traduce ids externos (String) a handles int densos 0, 1, 2, ... */
+class RegistroIds {
+    private static final int VACIO = -1;
+
+    // Tabla hash de direccionamiento abierto: sin Integer ni nodos por entrada
+    private String[] claves = new String[16];
+    private int[] valores = new int[16];
+    // handle -> id externo
+    private String[] ids = new String[16];
+    private int cantidad;
+
+    public RegistroIds() {
+        Arrays.fill(valores, VACIO);
+    }
+
+    public int tamano() { return cantidad; }
+
+    // Devuelve el handle del id, asignando uno nuevo si no existía
+    public int intern(String id) {
+        if (id == null) throw new IllegalArgumentException("id null");
+        int i = posicion(claves, id);
+        if (valores[i] != VACIO) return valores[i];
+        if (cantidad >= ids.length) ids = Arrays.copyOf(ids, ids.length * 2);
+        int handle = cantidad++;
+        ids[handle] = id;
+        claves[i] = id;
+        valores[i] = handle;
+        if (cantidad * 2 > claves.length) crecer();
+        return handle;
+    }
+
+    // Handle del id, o -1 si nunca se registró
+    public int buscar(String id) {
+        if (id == null) return VACIO;
+        return valores[posicion(claves, id)];
+    }
+
+    public String getId(int handle) {
+        if (handle < 0 || handle >= cantidad) return null;
+        return ids[handle];
+    }
+
+    private static int posicion(String[] tabla, String id) {
+        int mascara = tabla.length - 1;
+        int i = mezclar(id.hashCode()) & mascara;
+        while (tabla[i] != null && !tabla[i].equals(id)) {
+            i = (i + 1) & mascara;
+        }
+        return i;
+    }
+
+    private static int mezclar(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    private void crecer() {
+        String[] nuevasClaves = new String[claves.length * 2];
+        int[] nuevosValores = new int[nuevasClaves.length];
+        Arrays.fill(nuevosValores, VACIO);
+        for (int h = 0; h < cantidad; h++) {
+            int i = posicion(nuevasClaves, ids[h]);
+            nuevasClaves[i] = ids[h];
+            nuevosValores[i] = h;
+        }
+        claves = nuevasClaves;
+        valores = nuevosValores;
+    }
+
+    @Override
+    public String toString() {
+        return "RegistroIds{" + cantidad + " ids}";
+    }
+}
+
+/* 14) TablaEntidades: resolución handle -> entidad para un tipo (Pedido, Hogar, ...) */
+class TablaEntidades<T> {
+    private RegistroIds registro = new RegistroIds();
+    private Function<T, String> idDe; // p.ej. Pedido::getIdPedido
+
+    // Como los handles son densos, el mapa int -> entidad es un arreglo indexado por handle
+    private Object[] entidades = new Object[16];
+
+    public TablaEntidades(Function<T, String> idDe) {
+        this.idDe = idDe;
+    }
+
+    public RegistroIds getRegistro() { return registro; }
+    public int tamano() { return registro.tamano(); }
+
+    public int agregar(T entidad) {
+        if (entidad == null) return -1;
+        int handle = registro.intern(idDe.apply(entidad));
+        asegurarCapacidad(handle);
+        entidades[handle] = entidad;
+        return handle;
+    }
+
+    public void remover(T entidad) {
+        if (entidad == null) return;
+        int handle = registro.buscar(idDe.apply(entidad));
+        // el handle queda reservado para el id; solo se suelta la entidad
+        if (handle >= 0 && entidades[handle] == entidad) entidades[handle] = null;
+    }
+
+    // Handle ya registrado para el id de la entidad, o -1 (entidad o id null, o id desconocido)
+    public int handle(T entidad) {
+        if (entidad == null) return -1;
+        return registro.buscar(idDe.apply(entidad));
+    }
+
+    @SuppressWarnings("unchecked")
+    public T get(int handle) {
+        if (handle < 0 || handle >= entidades.length) return null;
+        return (T) entidades[handle];
+    }
+
+    public T get(String id) {
+        return get(registro.buscar(id));
+    }
+
+    // Lista de asociación compacta: handles en lugar de referencias. Solo lectura: las entidades
+    // no registradas (ver agregar) quedan como -1
+    public int[] handles(List<? extends T> lista) {
+        int[] resultado = new int[lista.size()];
+        for (int i = 0; i < resultado.length; i++) {
+            resultado[i] = handle(lista.get(i));
+        }
+        return resultado;
+    }
+
+    private void asegurarCapacidad(int handle) {
+        if (handle >= entidades.length) {
+            entidades = Arrays.copyOf(entidades, Math.max(handle + 1, entidades.length * 2));
+        }
+    }
+
+    public List<T> resolver(int[] handles) {
+        List<T> resultado = new ArrayList<>(handles.length);
+        for (int h : handles) {
+            T e = get(h);
+            if (e != null) resultado.add(e);
+        }
+        return resultado;
+    }
+
+    @Override
+    public String toString() {
+        return "TablaEntidades{" + tamano() + " entidades}";
+    }
+}
+
+/* 15) AlmacenAsociaciones: almacén persistente (BD, archivo, ...) de una asociación archivada.
+ * Cada almacén respalda una sola ListaPaginada: la vista guarda el tamaño y las páginas leídas,
+ * así que no debe escribirse por otro camino ni compartirse entre entidades. */
+interface AlmacenAsociaciones<T> {
+    int tamano();
+    // Lee hasta 'cantidad' elementos a partir de la posición 'desde', en orden de archivo
+    List<T> leerPagina(int desde, int cantidad);
+    // Agrega al final del historial
+    void guardar(T elemento);
+    // Saca el elemento del historial (re-activación o desasociación); false si no estaba
+    boolean quitar(Object elemento);
+    // Posición del elemento en el historial, o -1. La igualdad la define el almacén (p.ej. por id)
+    // y debe reconocer tanto los objetos guardados como los devueltos por leerPagina
+    int indiceDe(Object elemento);
+}
+
+/* 16) ListaPaginada: vista de solo lectura = historial del almacén (por páginas) + elementos en memoria */
+class ListaPaginada<T> extends AbstractList<T> {
+    public static final int TAMANO_PAGINA = 50;
+    public static final int MAX_PAGINAS = 4;
+
+    private AlmacenAsociaciones<T> almacen;
+    private List<T> residentes; // la lista viva de la entidad (no se copia)
+    private int tamanoPagina;
+    private int archivados;     // tamaño del almacén: se lee una vez y lo mantiene guardar()
+
+    // Caché LRU de las páginas tocadas recientemente
+    private Map<Integer, List<T>> paginas;
+
+    public ListaPaginada(AlmacenAsociaciones<T> almacen, List<T> residentes) {
+        this(almacen, residentes, TAMANO_PAGINA, MAX_PAGINAS);
+    }
+
+    public ListaPaginada(AlmacenAsociaciones<T> almacen, List<T> residentes, int tamanoPagina, final int maxPaginas) {
+        this.almacen = almacen;
+        this.residentes = residentes;
+        this.tamanoPagina = tamanoPagina;
+        this.archivados = almacen.tamano();
+        this.paginas = new LinkedHashMap<Integer, List<T>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<T>> eldest) {
+                return size() > maxPaginas;
+            }
+        };
+    }
+
+    @Override
+    public int size() {
+        return archivados + residentes.size();
+    }
+
+    // Primero el historial archivado, luego los elementos en memoria
+    @Override
+    public T get(int index) {
+        if (index < 0 || index >= archivados + residentes.size()) {
+            throw new IndexOutOfBoundsException("index " + index + ", size " + size());
+        }
+        if (index >= archivados) return residentes.get(index - archivados);
+        int numero = index / tamanoPagina;
+        List<T> pagina = paginas.get(numero);
+        if (pagina == null) {
+            pagina = almacen.leerPagina(numero * tamanoPagina, tamanoPagina);
+            paginas.put(numero, pagina);
+        }
+        return pagina.get(index - numero * tamanoPagina);
+    }
+
+    // Los archivados se buscan en el almacén (sin cargar páginas)
+    @Override
+    public boolean contains(Object o) {
+        return residentes.contains(o) || almacen.indiceDe(o) >= 0;
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        int i = almacen.indiceDe(o);
+        if (i >= 0) return i;
+        i = residentes.indexOf(o);
+        return i < 0 ? -1 : archivados + i;
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        int i = residentes.lastIndexOf(o);
+        if (i >= 0) return archivados + i;
+        return almacen.indiceDe(o);
+    }
+
+    // Llamado por la entidad al archivar; la última página cambia de contenido
+    void guardar(T elemento) {
+        almacen.guardar(elemento);
+        paginas.remove(archivados / tamanoPagina);
+        archivados++;
+    }
+
+    // Llamado por la entidad al re-activar o desasociar; desde esa página en adelante todo se corre
+    boolean quitar(Object elemento) {
+        int i = almacen.indiceDe(elemento);
+        if (i < 0 || !almacen.quitar(elemento)) return false;
+        final int desde = i / tamanoPagina;
+        paginas.keySet().removeIf(numero -> numero >= desde);
+        archivados--;
+        return true;
+    }
+}
+
+/* 17) AlmacenEnMemoria: implementación simple de AlmacenAsociaciones (ejemplos y pruebas) */
+class AlmacenEnMemoria<T> implements AlmacenAsociaciones<T> {
+    private List<T> elementos = new ArrayList<>();
+
+    @Override
+    public int tamano() { return elementos.size(); }
+
+    @Override
+    public List<T> leerPagina(int desde, int cantidad) {
+        int hasta = Math.min(elementos.size(), desde + cantidad);
+        return new ArrayList<>(elementos.subList(desde, hasta));
+    }
+
+    @Override
+    public void guardar(T elemento) { elementos.add(elemento); }
+
+    @Override
+    public int indiceDe(Object elemento) { return elementos.indexOf(elemento); }
+
+    @Override
+    public boolean quitar(Object elemento) { return elementos.remove(elemento); }
+}
+
 /* Ejemplo rápido de uso (puedes mover a una clase Main separada) */
 class EjemploUso {
     public static void main(String[] args) {
@@ -710,6 +1199,24 @@ class EjemploUso {
 
         ruta.addPedido(p);
 
+        // Completar el tramo alimenta los perfiles de velocidad del mapa
+        ru1.completar(LocalDateTime.now(), 6.5);
+        System.out.println("Tiempo estimado con historia: " + ruta.estimarTiempo(LocalDateTime.now()));
+
+        // Ids internados: búsqueda por handle int en vez de HashMap<String, Pedido>
+        TablaEntidades<Pedido> tablaPedidos = new TablaEntidades<>(Pedido::getIdPedido);
+        tablaPedidos.agregar(p);
+        int[] pedidosRuta = tablaPedidos.handles(ruta.getPedidos());
+        System.out.println("Pedidos de la ruta por handle: " + tablaPedidos.resolver(pedidosRuta));
+
+        // Historial paginado: el pedido archivado se sigue viendo en getPedidos(),
+        // y volver a asociarlo lo re-activa (sale del historial, sin duplicarse)
+        hogar.setHistorialPedidos(new AlmacenEnMemoria<>());
+        hogar.archivarPedido(p);
+        System.out.println("Pedidos del hogar (archivados + activos): " + hogar.getPedidos());
+        p.setHogar(hogar);
+        System.out.println("Pedidos del hogar tras re-activar: " + hogar.getPedidos());
+
         System.out.println("Pedido asociado a conductor: " + p.getConductor());
         System.out.println("Ruta del conductor: " + c.getRutas());
         System.out.println("Ubicaciones en la ruta: " + ruta.getRutaUbicaciones());